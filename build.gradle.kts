@@ -12,6 +12,23 @@ repositories {
 
 dependencies {
     paperweight.paperDevBundle("1.20.4-R0.1-SNAPSHOT")
+
+    testImplementation(platform("org.junit:junit-bom:5.10.1"))
+    testImplementation("org.junit.jupiter:junit-jupiter")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+}
+
+configurations.testImplementation {
+    extendsFrom(configurations.mojangMappedServer.get())
+}
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+val loadtest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+    runtimeClasspath += sourceSets.main.get().output + configurations.mojangMappedServerRuntime.get()
 }
 
 tasks.processResources {
@@ -36,6 +53,11 @@ val runServer by tasks.registering(JavaExec::class) {
     args("nogui", "--add-plugin", tasks.jar.get().outputs.files.singleFile)
 }
 
+val runLoadTest by tasks.registering(JavaExec::class) {
+    classpath = loadtest.runtimeClasspath
+    mainClass = "io.github.gaming32.musicplayer.loadtest.LoadTest"
+}
+
 //afterEvaluate {
 //    println(configurations.mojangMappedServerRuntime.get().files.joinToString(File.pathSeparator))
 //}
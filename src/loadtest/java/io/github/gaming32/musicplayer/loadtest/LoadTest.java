@@ -0,0 +1,248 @@
+package io.github.gaming32.musicplayer.loadtest;
+
+import com.google.common.hash.Hashing;
+import com.sun.net.httpserver.HttpServer;
+import io.github.gaming32.musicplayer.PackProvider;
+import io.github.gaming32.musicplayer.PlayerPackInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Simulates many clients going through /playmusic -> pack URL -> download against a fake music-dir and a stub ffmpeg.
+// Run with ./gradlew runLoadTest --args="--clients 100 --plays 20"
+// Pass --ogg-file with a real Vorbis file to use it for every song instead of random data.
+// Each conversion and download fails after --timeout seconds (default 30).
+public class LoadTest {
+    private static final Logger LOGGER = LoggerFactory.getLogger(LoadTest.class);
+
+    private int clients = 50;
+    private int plays = 10;
+    private int songs = 20;
+    private int songSize = 512 * 1024;
+    private long ffmpegDelay = 200L;
+    private Path oggFile = null;
+    private long timeout = 30L;
+
+    private final ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicInteger maxFfmpegProcesses = new AtomicInteger();
+    private final AtomicLong maxHeapUsed = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        final LoadTest loadTest = new LoadTest();
+        loadTest.parseArgs(args);
+        System.exit(loadTest.run() ? 0 : 1);
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            final String value = args[++i];
+            switch (args[i - 1]) {
+                case "--clients" -> clients = Integer.parseInt(value);
+                case "--plays" -> plays = Integer.parseInt(value);
+                case "--songs" -> songs = Integer.parseInt(value);
+                case "--song-size" -> songSize = Integer.parseInt(value) * 1024;
+                case "--ffmpeg-delay" -> ffmpegDelay = Long.parseLong(value);
+                case "--ogg-file" -> oggFile = Path.of(value);
+                case "--timeout" -> timeout = Long.parseLong(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i - 1]);
+            }
+        }
+    }
+
+    private boolean run() throws Exception {
+        final Path workDir = Files.createTempDirectory("music-player-loadtest");
+        HttpServer server = null;
+        ExecutorService clientExecutor = null;
+        Thread sampler = null;
+        try {
+            final Path musicDir = workDir.resolve("music");
+            final List<String> songPaths = generateSongs(musicDir);
+            final Path ffmpeg = createStubFfmpeg(workDir);
+
+            final PackProvider packProvider = new PackProvider(musicDir, ffmpeg.toString(), LOGGER);
+            // Mirror MusicPlayer.onEnable, including the default executor
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/", packProvider);
+            server.start();
+            // Use the bound address rather than "localhost", which may resolve to a different loopback address
+            final InetSocketAddress address = server.getAddress();
+            final String baseUri = new URI("http", null, address.getHostString(), address.getPort(), "/", null, null).toString();
+
+            clientExecutor = Executors.newFixedThreadPool(clients);
+            sampler = new Thread(this::sample, "LoadTest Sampler");
+            sampler.setDaemon(true);
+            sampler.start();
+
+            LOGGER.info("Running {} clients with {} plays each over {} songs", clients, plays, songs);
+            final CountDownLatch startLatch = new CountDownLatch(1);
+            for (int i = 0; i < clients; i++) {
+                final int clientId = i;
+                clientExecutor.execute(() -> runClient(clientId, startLatch, packProvider, baseUri, songPaths));
+            }
+            final long start = System.nanoTime();
+            startLatch.countDown();
+            clientExecutor.shutdown();
+            final boolean finished = clientExecutor.awaitTermination(1, TimeUnit.HOURS);
+            final long elapsed = System.nanoTime() - start;
+
+            if (!finished) {
+                LOGGER.error("Clients did not finish within an hour");
+            }
+            report(elapsed);
+            return finished && failures.get() == 0;
+        } finally {
+            if (sampler != null) {
+                sampler.interrupt();
+            }
+            if (clientExecutor != null) {
+                clientExecutor.shutdownNow();
+            }
+            if (server != null) {
+                server.stop(0);
+            }
+            try (Stream<Path> stream = Files.walk(workDir)) {
+                for (final Path path : (Iterable<Path>)stream.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private List<String> generateSongs(Path musicDir) throws IOException {
+        final Random random = new Random(0L);
+        final List<String> result = new ArrayList<>(songs);
+        for (int i = 0; i < songs; i++) {
+            // Odd songs skip ffmpeg like real .ogg files, and the nested directory exercises URL escaping
+            final String path = "album " + (i % 3) + "/track " + i + (i % 2 == 0 ? ".mp3" : ".ogg");
+            final Path file = musicDir.resolve(path);
+            Files.createDirectories(file.getParent());
+            if (oggFile != null) {
+                // The stub ffmpeg passes its input through, so this works for the converted songs too
+                Files.copy(oggFile, file);
+            } else {
+                final byte[] data = new byte[songSize];
+                random.nextBytes(data);
+                Files.write(file, data);
+            }
+            result.add(path);
+        }
+        return result;
+    }
+
+    private Path createStubFfmpeg(Path workDir) throws IOException {
+        if (System.getProperty("os.name").startsWith("Windows")) {
+            throw new UnsupportedOperationException("The stub ffmpeg requires a POSIX shell");
+        }
+        // Invoked as: ffmpeg -i <source> -vn -f ogg -
+        final Path ffmpeg = workDir.resolve("ffmpeg");
+        Files.writeString(ffmpeg, """
+            #!/bin/sh
+            sleep %s
+            exec cat "$2"
+            """.formatted(ffmpegDelay / 1000.0), StandardCharsets.UTF_8);
+        Files.setPosixFilePermissions(ffmpeg, PosixFilePermissions.fromString("rwxr-xr-x"));
+        return ffmpeg;
+    }
+
+    private void runClient(int clientId, CountDownLatch startLatch, PackProvider packProvider, String baseUri, List<String> songPaths) {
+        final Random random = new Random(clientId);
+        final HttpClient httpClient = HttpClient.newHttpClient();
+        try {
+            startLatch.await();
+        } catch (InterruptedException e) {
+            return;
+        }
+        for (int i = 0; i < plays; i++) {
+            final String path = songPaths.get(random.nextInt(songPaths.size()));
+            final long start = System.nanoTime();
+            try {
+                // Equivalent of /playmusic: the pack URL is only sent once the conversion has finished
+                final PlayerPackInfo packInfo = packProvider.createPackInfo(path).get(timeout, TimeUnit.SECONDS);
+                final HttpResponse<byte[]> response = httpClient.send(
+                    HttpRequest.newBuilder(URI.create(baseUri + PackProvider.getPackPath(path)))
+                        .timeout(Duration.ofSeconds(timeout))
+                        .build(),
+                    HttpResponse.BodyHandlers.ofByteArray()
+                );
+                if (response.statusCode() != 200) {
+                    throw new IllegalStateException("Server returned " + response.statusCode());
+                }
+                @SuppressWarnings("deprecation")
+                final String hash = Hashing.sha1().hashBytes(response.body()).toString();
+                if (!hash.equals(packInfo.hash())) {
+                    throw new IllegalStateException("Hash mismatch: expected " + packInfo.hash() + ", got " + hash);
+                }
+                latencies.add(System.nanoTime() - start);
+            } catch (Exception e) {
+                LOGGER.error("Client {} failed to play {}", clientId, path, e);
+                failures.incrementAndGet();
+            }
+        }
+    }
+
+    private void sample() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        while (!Thread.currentThread().isInterrupted()) {
+            // The only child processes we spawn are the stub ffmpeg
+            final int processes = (int)ProcessHandle.current().children().count();
+            maxFfmpegProcesses.accumulateAndGet(processes, Math::max);
+            maxHeapUsed.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max);
+            try {
+                Thread.sleep(5L);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void report(long elapsed) {
+        final long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        final double seconds = elapsed / 1e9;
+        System.out.printf("Completed plays:       %d (%d failed)%n", sorted.length, failures.get());
+        System.out.printf("Elapsed:               %.2f s%n", seconds);
+        System.out.printf("Throughput:            %.1f plays/s%n", sorted.length / seconds);
+        System.out.printf("Latency p50:           %.1f ms%n", percentile(sorted, 0.50) / 1e6);
+        System.out.printf("Latency p99:           %.1f ms%n", percentile(sorted, 0.99) / 1e6);
+        System.out.printf("Latency max:           %.1f ms%n", (sorted.length > 0 ? sorted[sorted.length - 1] : 0L) / 1e6);
+        System.out.printf("Peak heap used:        %.1f MiB%n", maxHeapUsed.get() / (1024.0 * 1024.0));
+        System.out.printf("Peak ffmpeg processes: %d%n", maxFfmpegProcesses.get());
+    }
+
+    private static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+        final int index = (int)Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)];
+    }
+}
@@ -0,0 +1,247 @@
+package io.github.gaming32.musicplayer;
+
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.sound.Sound;
+import net.kyori.adventure.sound.SoundStop;
+import net.kyori.adventure.text.Component;
+import org.bukkit.Location;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerRespawnEvent;
+import org.bukkit.event.player.PlayerTeleportEvent;
+import org.bukkit.event.vehicle.VehicleMoveEvent;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+// Keeps the audience of area playbacks up to date as players move around.
+// Minecraft can't start a sound part way through, so late joiners hear the song from the start.
+public class AudienceTracker implements Listener {
+    // Players have to be this far outside an area before they leave it, so walking along the edge doesn't restart the song
+    static final double EXIT_MARGIN = 4.0;
+
+    private final SongPlayer songPlayer;
+    private final LongSupplier clock;
+    private final PlayerChunkIndex index = new PlayerChunkIndex();
+    private final List<AreaPlayback> playbacks = new ArrayList<>();
+
+    public AudienceTracker(SongPlayer songPlayer) {
+        this(songPlayer, System::currentTimeMillis);
+    }
+
+    AudienceTracker(SongPlayer songPlayer, LongSupplier clock) {
+        this.songPlayer = songPlayer;
+        this.clock = clock;
+    }
+
+    public void startPlayback(PlaybackArea area, PlayerPackInfo packInfo, @Nullable Component sender) {
+        startPlayback(area, index.getPlayers(area), packInfo, sender);
+    }
+
+    // Playbacks with a fixed audience are tracked so that leaving an area doesn't stop the same sound for them
+    public void startFixedPlayback(Iterable<? extends Player> players, PlayerPackInfo packInfo, @Nullable Component sender) {
+        startPlayback(null, players, packInfo, sender);
+    }
+
+    private void startPlayback(
+        @Nullable PlaybackArea area, Iterable<? extends Player> players, PlayerPackInfo packInfo, @Nullable Component sender
+    ) {
+        if (packInfo.duration() == null) {
+            // We can't know when the song ends, so don't track it
+            for (final Player player : players) {
+                songPlayer.playSong(player, packInfo, sender, () -> true);
+            }
+            return;
+        }
+        final long time = clock.getAsLong();
+        removeExpired(time);
+        final AreaPlayback playback = new AreaPlayback(area, packInfo, sender, time + packInfo.duration().toMillis());
+        playbacks.add(playback);
+        for (final Player player : players) {
+            join(playback, player, time);
+        }
+    }
+
+    private void removeExpired(long time) {
+        playbacks.removeIf(playback -> playback.isExpired(time));
+    }
+
+    public void trackPlayer(Player player) {
+        playerMoved(player, player.getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        trackPlayer(event.getPlayer());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        final Player player = event.getPlayer();
+        index.remove(player);
+        for (final AreaPlayback playback : playbacks) {
+            playback.audience.remove(player.getUniqueId());
+            playback.sent.remove(player.getUniqueId());
+            playback.loaded.remove(player.getUniqueId());
+            playback.listeningUntil.remove(player.getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerMove(PlayerMoveEvent event) {
+        if (!event.hasChangedBlock()) return;
+        playerMoved(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerTeleport(PlayerTeleportEvent event) {
+        playerMoved(event.getPlayer(), event.getTo());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerRespawn(PlayerRespawnEvent event) {
+        playerMoved(event.getPlayer(), event.getRespawnLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onVehicleMove(VehicleMoveEvent event) {
+        if (!hasChangedBlock(event.getFrom(), event.getTo())) return;
+        for (final Entity passenger : event.getVehicle().getPassengers()) {
+            if (passenger instanceof Player player) {
+                playerMoved(player, event.getTo());
+            }
+        }
+    }
+
+    private static boolean hasChangedBlock(Location from, Location to) {
+        return from.getBlockX() != to.getBlockX()
+            || from.getBlockY() != to.getBlockY()
+            || from.getBlockZ() != to.getBlockZ()
+            || from.getWorld() != to.getWorld();
+    }
+
+    private void playerMoved(Player player, Location to) {
+        index.update(player, to);
+        if (playbacks.isEmpty()) return;
+        final long time = clock.getAsLong();
+        removeExpired(time);
+        for (final AreaPlayback playback : playbacks) {
+            if (playback.area == null) continue;
+            if (playback.area.contains(to)) {
+                join(playback, player, time);
+            } else if (!playback.area.contains(to, EXIT_MARGIN)) {
+                leave(playback, player, time);
+            }
+        }
+    }
+
+    private void join(AreaPlayback playback, Player player, long time) {
+        if (time >= playback.joinDeadline) return;
+        final UUID uuid = player.getUniqueId();
+        if (!playback.audience.add(uuid)) return;
+        if (playback.loaded.contains(uuid)) {
+            playback.startListening(uuid, time);
+            player.playSound(playback.packInfo.sound());
+        } else if (playback.sent.add(uuid)) {
+            songPlayer.playSong(player, playback.packInfo, playback.sender, () -> packLoaded(playback, uuid));
+        }
+        // Otherwise the pack is still loading, and packLoaded will start the song
+    }
+
+    private boolean packLoaded(AreaPlayback playback, UUID uuid) {
+        if (!playbacks.contains(playback) || !playback.sent.contains(uuid)) {
+            return false;
+        }
+        playback.loaded.add(uuid);
+        final long time = clock.getAsLong();
+        if (!playback.audience.contains(uuid) || time >= playback.joinDeadline) {
+            return false;
+        }
+        playback.startListening(uuid, time);
+        return true;
+    }
+
+    private void leave(AreaPlayback playback, Player player, long time) {
+        final UUID uuid = player.getUniqueId();
+        if (!playback.audience.remove(uuid)) return;
+        final boolean wasListening = playback.isListening(uuid, time);
+        playback.listeningUntil.remove(uuid);
+        if (!wasListening) {
+            // Either the song hasn't started for them yet, or it has already finished
+            return;
+        }
+        final Key soundKey = playback.packInfo.soundKey();
+        for (final AreaPlayback other : playbacks) {
+            if (other.isListening(uuid, time) && other.packInfo.soundKey().equals(soundKey)) {
+                // Someone else is still playing a sound with this key to the player
+                return;
+            }
+        }
+        player.stopSound(SoundStop.namedOnSource(soundKey, Sound.Source.RECORD));
+    }
+
+    @FunctionalInterface
+    public interface SongPlayer {
+        /**
+         * @param onLoaded Called once the player has loaded the pack. Returns whether the song should still be played.
+         */
+        void playSong(Player player, PlayerPackInfo packInfo, @Nullable Component sender, BooleanSupplier onLoaded);
+    }
+
+    private static class AreaPlayback {
+        @Nullable
+        final PlaybackArea area;
+        final PlayerPackInfo packInfo;
+        @Nullable
+        final Component sender;
+        // Nobody new starts listening after this, but the playback stays around until everyone's song has finished
+        final long joinDeadline;
+        final Set<UUID> audience = new HashSet<>();
+        // Players who have been sent the pack, and those who have finished loading it
+        final Set<UUID> sent = new HashSet<>();
+        final Set<UUID> loaded = new HashSet<>();
+        final Map<UUID, Long> listeningUntil = new HashMap<>();
+
+        AreaPlayback(@Nullable PlaybackArea area, PlayerPackInfo packInfo, @Nullable Component sender, long joinDeadline) {
+            this.area = area;
+            this.packInfo = packInfo;
+            this.sender = sender;
+            this.joinDeadline = joinDeadline;
+        }
+
+        void startListening(UUID uuid, long time) {
+            listeningUntil.put(uuid, time + packInfo.duration().toMillis());
+        }
+
+        boolean isListening(UUID uuid, long time) {
+            final Long until = listeningUntil.get(uuid);
+            return until != null && time < until;
+        }
+
+        boolean isExpired(long time) {
+            if (time < joinDeadline) {
+                return false;
+            }
+            for (final long until : listeningUntil.values()) {
+                if (time < until) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -2,23 +2,22 @@ package io.github.gaming32.musicplayer;
 
 import com.destroystokyo.paper.brigadier.BukkitBrigadierCommandSource;
 import com.destroystokyo.paper.event.brigadier.CommandRegisteredEvent;
-import com.google.common.base.Splitter;
 import com.google.common.base.Throwables;
-import com.google.common.net.UrlEscapers;
 import com.mojang.brigadier.arguments.ArgumentType;
+import com.mojang.brigadier.arguments.DoubleArgumentType;
 import com.mojang.brigadier.arguments.StringArgumentType;
+import com.mojang.brigadier.builder.ArgumentBuilder;
 import com.mojang.brigadier.builder.LiteralArgumentBuilder;
 import com.mojang.brigadier.builder.RequiredArgumentBuilder;
 import com.mojang.brigadier.context.CommandContext;
-import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpServer;
-import net.kyori.adventure.key.Key;
 import net.kyori.adventure.resource.ResourcePackInfo;
 import net.kyori.adventure.resource.ResourcePackRequest;
-import net.kyori.adventure.sound.Sound;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.ConsoleCommandSender;
@@ -32,30 +31,25 @@ import org.slf4j.Logger;
 
 import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class MusicPlayer extends JavaPlugin implements Listener {
-    private static final Map<String, CompletableFuture<PlayerPackInfo>> PACK_INFO_CACHE = new ConcurrentHashMap<>();
-
     private final Logger logger = getSLF4JLogger();
 
     private Path musicDir;
     private String ffmpegPath;
 
+    private PackProvider packProvider;
+    private AudienceTracker audienceTracker;
     private HttpServer server;
 
     private String baseUri;
@@ -83,6 +77,7 @@ public class MusicPlayer extends JavaPlugin implements Listener {
         }
 
         ffmpegPath = getConfig().getString("ffmpeg-path");
+        packProvider = new PackProvider(musicDir, ffmpegPath, logger);
 
         final InetSocketAddress address = new InetSocketAddress(
             getConfig().getString("http.host"),
@@ -91,7 +86,7 @@ public class MusicPlayer extends JavaPlugin implements Listener {
         logger.info("Starting HTTP server on {}", address);
         try {
             server = HttpServer.create(address, 0);
-            server.createContext("/", this::httpHandler);
+            server.createContext("/", packProvider);
             server.start();
         } catch (IOException e) {
             server = null;
@@ -108,6 +103,10 @@ public class MusicPlayer extends JavaPlugin implements Listener {
         playMusicCommand = getCommand("playmusic");
         Bukkit.getPluginManager().registerEvents(this, this);
 
+        audienceTracker = new AudienceTracker(this::playSong);
+        Bukkit.getPluginManager().registerEvents(audienceTracker, this);
+        Bukkit.getOnlinePlayers().forEach(audienceTracker::trackPlayer);
+
         checkForFfmpeg();
     }
 
@@ -127,6 +126,7 @@ public class MusicPlayer extends JavaPlugin implements Listener {
         if (event.getCommand() == musicPlayerCommand) {
             event.setLiteral(literal(event.getCommandLabel())
                 .then(playCommand(literal("play")))
+                .then(playInCommand(literal("playin")))
                 .then(literal("ffmpeg")
                     .requires(s -> s.getBukkitSender().hasPermission("musicplayer.ffmpeg"))
                     .then(literal("version")
@@ -168,11 +168,60 @@ public class MusicPlayer extends JavaPlugin implements Listener {
     private LiteralArgumentBuilder<BukkitBrigadierCommandSource> playCommand(LiteralArgumentBuilder<BukkitBrigadierCommandSource> literal) {
         return literal
             .requires(s -> s.getBukkitSender().hasPermission("musicplayer.play"))
-            .then(argument("path", StringArgumentType.greedyString())
-                .suggests((context, builder) -> getSongsList().thenApply(
-                    songs -> SharedSuggestionProvider.suggest(songs.stream(), builder)
-                ))
-                .executes(this::playMusic)
+            .then(songArgument().executes(this::playMusic));
+    }
+
+    private LiteralArgumentBuilder<BukkitBrigadierCommandSource> playInCommand(LiteralArgumentBuilder<BukkitBrigadierCommandSource> literal) {
+        return literal
+            .requires(s -> s.getBukkitSender().hasPermission("musicplayer.play"))
+            .then(literal("world")
+                .then(worldArgument()
+                    .then(songArgument().executes(ctx -> playMusicIn(ctx, worldArea(ctx))))
+                )
+            )
+            .then(literal("radius")
+                .then(worldArgument()
+                    .then(position("", argument("radius", DoubleArgumentType.doubleArg(0))
+                        .then(songArgument().executes(ctx -> playMusicIn(ctx, radiusArea(ctx))))
+                    ))
+                )
+            )
+            .then(literal("region")
+                .then(worldArgument()
+                    .then(position("from", position("to",
+                        songArgument().executes(ctx -> playMusicIn(ctx, regionArea(ctx)))
+                    )))
+                )
+            )
+            .then(literal("nearby")
+                .then(argument("radius", DoubleArgumentType.doubleArg(0))
+                    .then(songArgument().executes(ctx -> playMusicIn(ctx, nearbyArea(ctx))))
+                )
+            );
+    }
+
+    private RequiredArgumentBuilder<BukkitBrigadierCommandSource, String> songArgument() {
+        return argument("path", StringArgumentType.greedyString())
+            .suggests((context, builder) -> getSongsList().thenApply(
+                songs -> SharedSuggestionProvider.suggest(songs.stream(), builder)
+            ));
+    }
+
+    private static RequiredArgumentBuilder<BukkitBrigadierCommandSource, String> worldArgument() {
+        return argument("world", StringArgumentType.string())
+            .suggests((context, builder) -> CompletableFuture.completedFuture(
+                SharedSuggestionProvider.suggest(Bukkit.getWorlds().stream().map(World::getName), builder)
+            ));
+    }
+
+    private static RequiredArgumentBuilder<BukkitBrigadierCommandSource, Double> position(
+        String prefix, ArgumentBuilder<BukkitBrigadierCommandSource, ?> next
+    ) {
+        return argument(prefix + "x", DoubleArgumentType.doubleArg())
+            .then(argument(prefix + "y", DoubleArgumentType.doubleArg())
+                .then(argument(prefix + "z", DoubleArgumentType.doubleArg())
+                    .then(next)
+                )
             );
     }
 
@@ -182,36 +231,74 @@ public class MusicPlayer extends JavaPlugin implements Listener {
         return playSong(sender.getServer().getOnlinePlayers(), path, sender) ? 1 : 0;
     }
 
-    private void httpHandler(HttpExchange exchange) throws IOException {
-        if (!exchange.getRequestMethod().equals("GET")) {
-            exchange.sendResponseHeaders(405, -1);
-            return;
+    private int playMusicIn(CommandContext<BukkitBrigadierCommandSource> context, @Nullable PlaybackArea area) {
+        if (area == null) {
+            return 0;
         }
-        final String fullPath = exchange.getRequestURI().getPath();
-        if (!fullPath.endsWith(".zip")) {
-            exchange.sendResponseHeaders(404, -1);
-            return;
+        final String path = StringArgumentType.getString(context, "path");
+        return playSong(area, path, context.getSource().getBukkitSender()) ? 1 : 0;
+    }
+
+    @Nullable
+    private static PlaybackArea worldArea(CommandContext<BukkitBrigadierCommandSource> context) {
+        final World world = getWorld(context);
+        return world != null ? PlaybackArea.world(world) : null;
+    }
+
+    @Nullable
+    private static PlaybackArea radiusArea(CommandContext<BukkitBrigadierCommandSource> context) {
+        final World world = getWorld(context);
+        if (world == null) {
+            return null;
         }
-        final CompletableFuture<PlayerPackInfo> future = PACK_INFO_CACHE.get(fullPath.substring(1, fullPath.length() - 4));
-        if (future == null) {
-            exchange.sendResponseHeaders(404, -1);
-            return;
+        return PlaybackArea.radius(
+            new Location(
+                world,
+                DoubleArgumentType.getDouble(context, "x"),
+                DoubleArgumentType.getDouble(context, "y"),
+                DoubleArgumentType.getDouble(context, "z")
+            ),
+            DoubleArgumentType.getDouble(context, "radius")
+        );
+    }
+
+    @Nullable
+    private static PlaybackArea regionArea(CommandContext<BukkitBrigadierCommandSource> context) {
+        final World world = getWorld(context);
+        if (world == null) {
+            return null;
         }
-        final PlayerPackInfo packInfo;
-        try {
-            packInfo = future.get(1, TimeUnit.SECONDS);
-        } catch (InterruptedException | TimeoutException e) {
-            // I wish there was a better status code for this
-            exchange.sendResponseHeaders(404, -1);
-            return;
-        } catch (ExecutionException e) {
-            logger.error("Failed to convert PlayerPackInfo", e);
-            exchange.sendResponseHeaders(500, -1);
-            return;
+        return PlaybackArea.blockRegion(
+            world,
+            DoubleArgumentType.getDouble(context, "fromx"),
+            DoubleArgumentType.getDouble(context, "fromy"),
+            DoubleArgumentType.getDouble(context, "fromz"),
+            DoubleArgumentType.getDouble(context, "tox"),
+            DoubleArgumentType.getDouble(context, "toy"),
+            DoubleArgumentType.getDouble(context, "toz")
+        );
+    }
+
+    @Nullable
+    private static PlaybackArea nearbyArea(CommandContext<BukkitBrigadierCommandSource> context) {
+        final Location location = context.getSource().getBukkitLocation();
+        if (location == null || location.getWorld() == null) {
+            context.getSource().getBukkitSender().sendMessage(Component.text(
+                "You must be in a world to play music nearby.", NamedTextColor.RED
+            ));
+            return null;
         }
-        exchange.getResponseHeaders().add("Content-Type", "application/zip");
-        exchange.sendResponseHeaders(200, packInfo.data().length);
-        exchange.getResponseBody().write(packInfo.data());
+        return PlaybackArea.radius(location, DoubleArgumentType.getDouble(context, "radius"));
+    }
+
+    @Nullable
+    private static World getWorld(CommandContext<BukkitBrigadierCommandSource> context) {
+        final String name = StringArgumentType.getString(context, "world");
+        final World world = Bukkit.getWorld(name);
+        if (world == null) {
+            context.getSource().getBukkitSender().sendMessage(Component.text("Could not find world " + name, NamedTextColor.RED));
+        }
+        return world;
     }
 
     private void checkForFfmpeg() {
@@ -259,6 +346,14 @@ public class MusicPlayer extends JavaPlugin implements Listener {
     }
 
     public boolean playSong(Iterable<? extends Player> players, String path, @Nullable CommandSender sender) {
+        return prepareSong(path, sender, (result, senderName) -> playSong(players, result, senderName));
+    }
+
+    public boolean playSong(PlaybackArea area, String path, @Nullable CommandSender sender) {
+        return prepareSong(path, sender, (result, senderName) -> playSong(area, result, senderName));
+    }
+
+    private boolean prepareSong(String path, @Nullable CommandSender sender, BiConsumer<PlayerPackInfo, Component> action) {
         final Path resolved = musicDir.resolve(path);
         if (!resolved.startsWith(musicDir) || !Files.isRegularFile(resolved)) {
             if (sender != null) {
@@ -278,7 +373,7 @@ public class MusicPlayer extends JavaPlugin implements Listener {
         createPackInfo(path).handle((result, error) -> {
             if (error != null) {
                 logger.error("Failed to convert music", error);
-                PACK_INFO_CACHE.remove(path);
+                packProvider.invalidate(path);
                 if (sender != null) {
                     runOnMainThread(() -> {
                         sender.sendMessage(Component.text("Failed to play song.", NamedTextColor.RED));
@@ -289,76 +384,49 @@ public class MusicPlayer extends JavaPlugin implements Listener {
                 }
                 return null;
             }
-            runOnMainThread(() -> playSong(players, result, sender instanceof Entity entity ? entity.teamDisplayName() : null));
+            runOnMainThread(() -> action.accept(result, sender instanceof Entity entity ? entity.teamDisplayName() : null));
             return null;
         });
         return true;
     }
 
     public CompletableFuture<PlayerPackInfo> createPackInfo(String path) {
-        return PACK_INFO_CACHE.computeIfAbsent(path, this::createPackInfo0);
+        return packProvider.createPackInfo(path);
     }
 
-    private CompletableFuture<PlayerPackInfo> createPackInfo0(String path) {
-        return CompletableFuture.supplyAsync(() -> {
-            final Path sourcePath = musicDir.resolve(path).toAbsolutePath();
-            try {
-                if (path.endsWith(".ogg")) {
-                    // No conversion necessary
-                    try (InputStream is = Files.newInputStream(sourcePath)) {
-                        return PlayerPackInfo.create(is, path);
-                    }
-                }
-                final Process process = new ProcessBuilder(
-                    ffmpegPath, "-i", sourcePath.toString(), "-vn", "-f", "ogg", "-"
-                ).redirectError(ProcessBuilder.Redirect.DISCARD).start();
-                final PlayerPackInfo result = PlayerPackInfo.create(process.getInputStream(), path);
-                if (process.waitFor() != 0) {
-                    final int exitCode = process.exitValue();
-                    if (exitCode == 1) {
-                        throw new IllegalArgumentException("ffmpeg conversion failed with generic error");
-                    }
-                    throw new IllegalStateException("ffmpeg conversion failed: " + FfmpegError.toString(process.exitValue()));
-                }
-                return result;
-            } catch (RuntimeException e) {
-                throw e;
-            } catch (IOException e) {
-                throw new UncheckedIOException(e);
-            } catch (Exception e) {
-                throw new RuntimeException(e);
-            }
-        });
+    public void playSong(Iterable<? extends Player> players, PlayerPackInfo packInfo, @Nullable Component sender) {
+        audienceTracker.startFixedPlayback(players, packInfo, sender);
     }
 
-    public void playSong(Iterable<? extends Player> players, PlayerPackInfo packInfo, @Nullable Component sender) {
-        for (final Player player : players) {
-            playSong(player, packInfo, sender);
-        }
+    public void playSong(PlaybackArea area, PlayerPackInfo packInfo, @Nullable Component sender) {
+        audienceTracker.startPlayback(area, packInfo, sender);
     }
 
-    @SuppressWarnings("PatternValidation")
     public void playSong(Player player, PlayerPackInfo packInfo, @Nullable Component sender) {
+        playSong(player, packInfo, sender, () -> true);
+    }
+
+    /**
+     * @param onLoaded Called once the player has loaded the pack. Returns whether the song should still be played.
+     */
+    public void playSong(Player player, PlayerPackInfo packInfo, @Nullable Component sender, BooleanSupplier onLoaded) {
         try {
-            final String escapedPath = Splitter.on('/')
-                .splitToStream(packInfo.path())
-                .map(UrlEscapers.urlPathSegmentEscaper().asFunction())
-                .collect(Collectors.joining("/"));
             player.sendResourcePacks(ResourcePackRequest.resourcePackRequest()
                 .prompt(Component.text("This resourcepack is required to listen to " + packInfo.path() + "."))
                 .required(true)
                 .packs(ResourcePackInfo.resourcePackInfo()
                     .id(packInfo.uuid())
-                    .uri(new URI(getBaseUri(player) + escapedPath + ".zip"))
+                    .uri(new URI(getBaseUri(player) + PackProvider.getPackPath(packInfo.path())))
                     .hash(packInfo.hash())
                 )
                 .callback((uuid, status, audience) -> {
                     if (status.intermediate()) return;
                     switch (status) {
-                        case SUCCESSFULLY_LOADED -> audience.playSound(Sound.sound(
-                            Key.key("music-player", "custom_music." + packInfo.path().length()),
-                            Sound.Source.RECORD, 1f, 1f
-                        ));
+                        case SUCCESSFULLY_LOADED -> {
+                            if (onLoaded.getAsBoolean()) {
+                                audience.playSound(packInfo.sound());
+                            }
+                        }
                         case DECLINED -> audience.sendMessage(Component.text(
                             "Cannot play " + packInfo.path() + " unless you accept the resourcepack.",
                             NamedTextColor.RED
@@ -0,0 +1,146 @@
+package io.github.gaming32.musicplayer;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+// Walks the Ogg pages written to it to find the length of the Vorbis stream, without buffering the audio.
+// https://xiph.org/ogg/doc/framing.html
+// https://xiph.org/vorbis/doc/Vorbis_I_spec.html#x1-630004.2.2
+public class OggDurationReader extends OutputStream {
+    public static final Duration MAX_DURATION = Duration.ofHours(3);
+
+    private static final byte[] CAPTURE_PATTERN = "OggS".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] VORBIS_ID_HEADER = "\u0001vorbis".getBytes(StandardCharsets.US_ASCII);
+    private static final int PAGE_HEADER_SIZE = 27;
+    private static final int VORBIS_ID_HEADER_SIZE = 30;
+    private static final int FLAG_BOS = 0x02;
+
+    private final ByteBuffer pageHeader = ByteBuffer.allocate(PAGE_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final ByteBuffer segmentTable = ByteBuffer.allocate(255);
+    private final ByteBuffer bodyPrefix = ByteBuffer.allocate(VORBIS_ID_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private int bodyRemaining;
+    private State state = State.HEADER;
+
+    private boolean foundVorbis;
+    private int vorbisSerial;
+    private long sampleRate;
+    private long lastGranule = -1;
+
+    @Override
+    public void write(int b) {
+        write(new byte[] {(byte)b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        final int end = off + len;
+        while (off < end && state != State.INVALID) {
+            switch (state) {
+                case HEADER -> {
+                    off = fill(pageHeader, b, off, end);
+                    if (!pageHeader.hasRemaining()) {
+                        readPageHeader();
+                    }
+                }
+                case SEGMENTS -> {
+                    off = fill(segmentTable, b, off, end);
+                    if (!segmentTable.hasRemaining()) {
+                        bodyRemaining = 0;
+                        for (int i = 0; i < segmentTable.limit(); i++) {
+                            bodyRemaining += segmentTable.get(i) & 0xff;
+                        }
+                        bodyPrefix.clear().limit(Math.min(bodyRemaining, VORBIS_ID_HEADER_SIZE));
+                        state = State.BODY;
+                        if (bodyRemaining == 0) {
+                            finishPage();
+                        }
+                    }
+                }
+                case BODY -> {
+                    final int count = Math.min(bodyRemaining, end - off);
+                    fill(bodyPrefix, b, off, off + count);
+                    off += count;
+                    bodyRemaining -= count;
+                    if (bodyRemaining == 0) {
+                        finishPage();
+                    }
+                }
+            }
+        }
+    }
+
+    private static int fill(ByteBuffer buffer, byte[] b, int off, int end) {
+        final int count = Math.min(buffer.remaining(), end - off);
+        buffer.put(b, off, count);
+        return off + count;
+    }
+
+    private void readPageHeader() {
+        final byte[] header = pageHeader.array();
+        if (!Arrays.equals(header, 0, CAPTURE_PATTERN.length, CAPTURE_PATTERN, 0, CAPTURE_PATTERN.length) || header[4] != 0) {
+            state = State.INVALID;
+            return;
+        }
+        segmentTable.clear().limit(header[26] & 0xff);
+        state = State.SEGMENTS;
+        if (segmentTable.limit() == 0) {
+            bodyRemaining = 0;
+            bodyPrefix.clear().limit(0);
+            state = State.BODY;
+            finishPage();
+        }
+    }
+
+    private void finishPage() {
+        final int flags = pageHeader.get(5);
+        final long granule = pageHeader.getLong(6);
+        final int serial = pageHeader.getInt(14);
+        if (!foundVorbis) {
+            if ((flags & FLAG_BOS) != 0 && isVorbisIdHeader()) {
+                foundVorbis = true;
+                vorbisSerial = serial;
+                sampleRate = bodyPrefix.getInt(12) & 0xffffffffL;
+            }
+        } else if (serial == vorbisSerial && granule != -1) {
+            // -1 means that no packet finishes on this page
+            lastGranule = granule;
+        }
+        pageHeader.clear();
+        state = State.HEADER;
+    }
+
+    private boolean isVorbisIdHeader() {
+        if (bodyPrefix.position() < VORBIS_ID_HEADER_SIZE) {
+            return false;
+        }
+        final byte[] body = bodyPrefix.array();
+        return Arrays.equals(body, 0, VORBIS_ID_HEADER.length, VORBIS_ID_HEADER, 0, VORBIS_ID_HEADER.length)
+            && bodyPrefix.getInt(7) == 0; // vorbis_version
+    }
+
+    /**
+     * @return The length of the Vorbis stream, or {@code null} if it could not be determined. Lengths are clamped to
+     * {@link #MAX_DURATION}.
+     */
+    @Nullable
+    public Duration getDuration() {
+        if (state == State.INVALID || !foundVorbis || sampleRate == 0 || lastGranule <= 0) {
+            return null;
+        }
+        final long seconds = lastGranule / sampleRate;
+        if (seconds >= MAX_DURATION.getSeconds()) {
+            return MAX_DURATION;
+        }
+        return Duration.ofSeconds(seconds, (lastGranule % sampleRate) * 1_000_000_000L / sampleRate);
+    }
+
+    private enum State {
+        HEADER, SEGMENTS, BODY, INVALID
+    }
+}
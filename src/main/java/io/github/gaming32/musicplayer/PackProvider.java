@@ -0,0 +1,124 @@
+package io.github.gaming32.musicplayer;
+
+import com.google.common.base.Splitter;
+import com.google.common.net.UrlEscapers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Collectors;
+
+// Kept free of Bukkit so that it can be driven by the load test harness as well
+public class PackProvider implements HttpHandler {
+    private final Map<String, CompletableFuture<PlayerPackInfo>> packInfoCache = new ConcurrentHashMap<>();
+
+    private final Path musicDir;
+    private final String ffmpegPath;
+    private final Logger logger;
+
+    public PackProvider(Path musicDir, String ffmpegPath, Logger logger) {
+        this.musicDir = musicDir;
+        this.ffmpegPath = ffmpegPath;
+        this.logger = logger;
+    }
+
+    public static String getPackPath(String path) {
+        return Splitter.on('/')
+            .splitToStream(path)
+            .map(UrlEscapers.urlPathSegmentEscaper().asFunction())
+            .collect(Collectors.joining("/")) + ".zip";
+    }
+
+    @Override
+    public void handle(HttpExchange exchange) throws IOException {
+        // The exchange has to be closed for the connection to be reused
+        try {
+            handle0(exchange);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handle0(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("GET")) {
+            exchange.sendResponseHeaders(405, -1);
+            return;
+        }
+        final String fullPath = exchange.getRequestURI().getPath();
+        if (!fullPath.endsWith(".zip")) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        final CompletableFuture<PlayerPackInfo> future = packInfoCache.get(fullPath.substring(1, fullPath.length() - 4));
+        if (future == null) {
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        }
+        final PlayerPackInfo packInfo;
+        try {
+            packInfo = future.get(1, TimeUnit.SECONDS);
+        } catch (InterruptedException | TimeoutException e) {
+            // I wish there was a better status code for this
+            exchange.sendResponseHeaders(404, -1);
+            return;
+        } catch (ExecutionException e) {
+            logger.error("Failed to convert PlayerPackInfo", e);
+            exchange.sendResponseHeaders(500, -1);
+            return;
+        }
+        exchange.getResponseHeaders().add("Content-Type", "application/zip");
+        exchange.sendResponseHeaders(200, packInfo.data().length);
+        exchange.getResponseBody().write(packInfo.data());
+    }
+
+    public CompletableFuture<PlayerPackInfo> createPackInfo(String path) {
+        return packInfoCache.computeIfAbsent(path, this::createPackInfo0);
+    }
+
+    public void invalidate(String path) {
+        packInfoCache.remove(path);
+    }
+
+    private CompletableFuture<PlayerPackInfo> createPackInfo0(String path) {
+        return CompletableFuture.supplyAsync(() -> {
+            final Path sourcePath = musicDir.resolve(path).toAbsolutePath();
+            try {
+                if (path.endsWith(".ogg")) {
+                    // No conversion necessary
+                    try (InputStream is = Files.newInputStream(sourcePath)) {
+                        return PlayerPackInfo.create(is, path);
+                    }
+                }
+                final Process process = new ProcessBuilder(
+                    ffmpegPath, "-i", sourcePath.toString(), "-vn", "-f", "ogg", "-"
+                ).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+                final PlayerPackInfo result = PlayerPackInfo.create(process.getInputStream(), path);
+                if (process.waitFor() != 0) {
+                    final int exitCode = process.exitValue();
+                    if (exitCode == 1) {
+                        throw new IllegalArgumentException("ffmpeg conversion failed with generic error");
+                    }
+                    throw new IllegalStateException("ffmpeg conversion failed: " + FfmpegError.toString(process.exitValue()));
+                }
+                return result;
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+}
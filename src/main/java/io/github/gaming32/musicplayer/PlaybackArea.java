@@ -0,0 +1,94 @@
+package io.github.gaming32.musicplayer;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.BoundingBox;
+import org.jetbrains.annotations.Nullable;
+
+public sealed interface PlaybackArea {
+    World world();
+
+    /**
+     * @return The bounds of this area, or {@code null} if it covers the entire world
+     */
+    @Nullable BoundingBox bounds();
+
+    default boolean contains(Location location) {
+        return contains(location, 0.0);
+    }
+
+    /**
+     * @param margin How far outside of the area a location may be while still counting as inside it
+     */
+    boolean contains(Location location, double margin);
+
+    static PlaybackArea world(World world) {
+        return new WorldArea(world);
+    }
+
+    static PlaybackArea radius(Location center, double radius) {
+        return new RadiusArea(center.clone(), radius);
+    }
+
+    /**
+     * @param region The region to play in. Its maximum corner is exclusive.
+     */
+    static PlaybackArea region(World world, BoundingBox region) {
+        return new RegionArea(world, region.clone());
+    }
+
+    /**
+     * Creates a region that includes both corner blocks, which is what players expect from block coordinates.
+     */
+    static PlaybackArea blockRegion(World world, double x1, double y1, double z1, double x2, double y2, double z2) {
+        return new RegionArea(world, new BoundingBox(
+            Math.floor(Math.min(x1, x2)), Math.floor(Math.min(y1, y2)), Math.floor(Math.min(z1, z2)),
+            Math.floor(Math.max(x1, x2)) + 1, Math.floor(Math.max(y1, y2)) + 1, Math.floor(Math.max(z1, z2)) + 1
+        ));
+    }
+
+    record WorldArea(World world) implements PlaybackArea {
+        @Override
+        public @Nullable BoundingBox bounds() {
+            return null;
+        }
+
+        @Override
+        public boolean contains(Location location, double margin) {
+            return world.equals(location.getWorld());
+        }
+    }
+
+    record RadiusArea(Location center, double radius) implements PlaybackArea {
+        @Override
+        public World world() {
+            return center.getWorld();
+        }
+
+        @Override
+        public BoundingBox bounds() {
+            return BoundingBox.of(center, radius, radius, radius);
+        }
+
+        @Override
+        public boolean contains(Location location, double margin) {
+            final double outerRadius = radius + margin;
+            return world().equals(location.getWorld()) && center.distanceSquared(location) <= outerRadius * outerRadius;
+        }
+    }
+
+    record RegionArea(World world, BoundingBox region) implements PlaybackArea {
+        @Override
+        public BoundingBox bounds() {
+            return region;
+        }
+
+        @Override
+        public boolean contains(Location location, double margin) {
+            return world.equals(location.getWorld())
+                && location.getX() >= region.getMinX() - margin && location.getX() < region.getMaxX() + margin
+                && location.getY() >= region.getMinY() - margin && location.getY() < region.getMaxY() + margin
+                && location.getZ() >= region.getMinZ() - margin && location.getZ() < region.getMaxZ() + margin;
+        }
+    }
+}
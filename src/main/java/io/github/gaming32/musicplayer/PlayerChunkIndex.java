@@ -0,0 +1,95 @@
+package io.github.gaming32.musicplayer;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import org.bukkit.util.BoundingBox;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+// Buckets online players by chunk so that areas only have to look at the chunks they overlap
+public class PlayerChunkIndex {
+    private final Map<UUID, Long2ObjectMap<Set<Player>>> worlds = new HashMap<>();
+    private final Map<Player, Entry> entries = new HashMap<>();
+
+    public void update(Player player, Location location) {
+        final Entry entry = new Entry(location.getWorld().getUID(), Chunk.getChunkKey(location));
+        final Entry oldEntry = entries.put(player, entry);
+        if (entry.equals(oldEntry)) return;
+        if (oldEntry != null) {
+            removeFromBucket(player, oldEntry);
+        }
+        worlds.computeIfAbsent(entry.world, k -> new Long2ObjectOpenHashMap<>())
+            .computeIfAbsent(entry.chunk, k -> new HashSet<>())
+            .add(player);
+    }
+
+    public void remove(Player player) {
+        final Entry entry = entries.remove(player);
+        if (entry != null) {
+            removeFromBucket(player, entry);
+        }
+    }
+
+    private void removeFromBucket(Player player, Entry entry) {
+        final Long2ObjectMap<Set<Player>> chunks = worlds.get(entry.world);
+        final Set<Player> bucket = chunks.get(entry.chunk);
+        bucket.remove(player);
+        if (bucket.isEmpty()) {
+            chunks.remove(entry.chunk);
+            if (chunks.isEmpty()) {
+                worlds.remove(entry.world);
+            }
+        }
+    }
+
+    public List<Player> getPlayers(PlaybackArea area) {
+        final List<Player> result = new ArrayList<>();
+        final Long2ObjectMap<Set<Player>> chunks = worlds.get(area.world().getUID());
+        if (chunks == null) {
+            return result;
+        }
+        final BoundingBox bounds = area.bounds();
+        if (bounds != null) {
+            final int minX = (int)Math.floor(bounds.getMinX()) >> 4;
+            final int minZ = (int)Math.floor(bounds.getMinZ()) >> 4;
+            final int maxX = (int)Math.floor(bounds.getMaxX()) >> 4;
+            final int maxZ = (int)Math.floor(bounds.getMaxZ()) >> 4;
+            // Large areas are cheaper to resolve by going over the occupied chunks instead
+            if ((long)(maxX - minX + 1) * (maxZ - minZ + 1) <= chunks.size()) {
+                for (int x = minX; x <= maxX; x++) {
+                    for (int z = minZ; z <= maxZ; z++) {
+                        final Set<Player> bucket = chunks.get(Chunk.getChunkKey(x, z));
+                        if (bucket != null) {
+                            addContained(result, bucket, area);
+                        }
+                    }
+                }
+                return result;
+            }
+        }
+        for (final Set<Player> bucket : chunks.values()) {
+            addContained(result, bucket, area);
+        }
+        return result;
+    }
+
+    private static void addContained(List<Player> result, Set<Player> bucket, PlaybackArea area) {
+        for (final Player player : bucket) {
+            if (area.contains(player.getLocation())) {
+                result.add(player);
+            }
+        }
+    }
+
+    private record Entry(UUID world, long chunk) {
+    }
+}
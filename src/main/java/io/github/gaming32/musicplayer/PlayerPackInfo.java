@@ -3,8 +3,12 @@ package io.github.gaming32.musicplayer;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hashing;
 import com.google.common.hash.HashingOutputStream;
+import net.kyori.adventure.key.Key;
+import net.kyori.adventure.sound.Sound;
 import org.apache.commons.io.function.IOConsumer;
+import org.apache.commons.io.output.TeeOutputStream;
 import org.intellij.lang.annotations.Language;
+import org.jetbrains.annotations.Nullable;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -12,11 +16,12 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.UUID;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-public record PlayerPackInfo(String path, UUID uuid, byte[] data, String hash) {
+public record PlayerPackInfo(String path, UUID uuid, byte[] data, String hash, @Nullable Duration duration) {
     @Language("JSON")
     private static final String PACK_MCMETA = """
         {
@@ -41,7 +46,8 @@ public record PlayerPackInfo(String path, UUID uuid, byte[] data, String hash) {
         """;
 
     public static PlayerPackInfo create(InputStream input, String path) {
-        return create(path, out -> {
+        final OggDurationReader durationReader = new OggDurationReader();
+        final PlayerPackInfo packInfo = create(path, out -> {
             try (final ZipOutputStream zos = new ZipOutputStream(out)) {
                 zos.putNextEntry(entry("pack.mcmeta"));
                 zos.write(PACK_MCMETA.formatted(path).getBytes(StandardCharsets.UTF_8));
@@ -57,10 +63,24 @@ public record PlayerPackInfo(String path, UUID uuid, byte[] data, String hash) {
                 directory(zos, "assets/music-player/sounds/");
 
                 zos.putNextEntry(entry("assets/music-player/sounds/" + path.length() + ".ogg"));
-                input.transferTo(zos);
+                input.transferTo(new TeeOutputStream(zos, durationReader));
                 zos.closeEntry();
             }
         });
+        return packInfo.withDuration(durationReader.getDuration());
+    }
+
+    public PlayerPackInfo withDuration(@Nullable Duration duration) {
+        return new PlayerPackInfo(path, uuid, data, hash, duration);
+    }
+
+    @SuppressWarnings("PatternValidation")
+    public Key soundKey() {
+        return Key.key("music-player", "custom_music." + path.length());
+    }
+
+    public Sound sound() {
+        return Sound.sound(soundKey(), Sound.Source.RECORD, 1f, 1f);
     }
 
     private static ZipEntry entry(String name) {
@@ -91,6 +111,6 @@ public record PlayerPackInfo(String path, UUID uuid, byte[] data, String hash) {
             throw new UncheckedIOException(e);
         }
         final HashCode hashCode = hos.hash();
-        return new PlayerPackInfo(path, UuidUtil.uuidFromHashCode(hashCode), baos.toByteArray(), hashCode.toString());
+        return new PlayerPackInfo(path, UuidUtil.uuidFromHashCode(hashCode), baos.toByteArray(), hashCode.toString(), null);
     }
 }
@@ -0,0 +1,154 @@
+package io.github.gaming32.musicplayer;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.PlayerMoveEvent;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AudienceTrackerTest {
+    private static final World WORLD = FakePlayer.world("world");
+    private static final PlayerPackInfo PACK = new PlayerPackInfo(
+        "song.ogg", UUID.randomUUID(), new byte[0], "hash", Duration.ofSeconds(60)
+    );
+    private static final PlaybackArea AREA = PlaybackArea.radius(new Location(WORLD, 0, 64, 0), 10);
+
+    private final List<SentSong> sentSongs = new ArrayList<>();
+    private long time = 0L;
+    private final AudienceTracker tracker = new AudienceTracker(
+        (player, packInfo, sender, onLoaded) -> sentSongs.add(new SentSong(player, onLoaded)),
+        () -> time
+    );
+
+    @Test
+    public void lateJoinerGetsPack() {
+        final FakePlayer inside = add(0, 0);
+        final FakePlayer outside = add(50, 0);
+        tracker.startPlayback(AREA, PACK, null);
+        assertEquals(List.of(inside.player), sentPlayers());
+
+        move(outside, 5, 0);
+        assertEquals(List.of(inside.player, outside.player), sentPlayers());
+        assertTrue(sentSongs.get(1).onLoaded.getAsBoolean());
+    }
+
+    @Test
+    public void exitMargin() {
+        final FakePlayer player = add(0, 0);
+        tracker.startPlayback(AREA, PACK, null);
+        assertTrue(sentSongs.get(0).onLoaded.getAsBoolean());
+
+        move(player, 10 + AudienceTracker.EXIT_MARGIN - 1, 0);
+        move(player, 9, 0);
+        move(player, 10 + AudienceTracker.EXIT_MARGIN - 1, 0);
+        assertEquals(0, player.stoppedSounds);
+        assertEquals(0, player.playedSounds);
+
+        move(player, 10 + AudienceTracker.EXIT_MARGIN + 1, 0);
+        assertEquals(1, player.stoppedSounds);
+    }
+
+    @Test
+    public void reentryOnlyReplaysSound() {
+        final FakePlayer player = add(0, 0);
+        tracker.startPlayback(AREA, PACK, null);
+        assertTrue(sentSongs.get(0).onLoaded.getAsBoolean());
+
+        move(player, 30, 0);
+        move(player, 0, 0);
+        assertEquals(1, sentSongs.size());
+        assertEquals(1, player.stoppedSounds);
+        assertEquals(1, player.playedSounds);
+    }
+
+    @Test
+    public void leavingBeforeLoadSkipsSong() {
+        final FakePlayer player = add(0, 0);
+        tracker.startPlayback(AREA, PACK, null);
+        move(player, 30, 0);
+        assertEquals(0, player.stoppedSounds);
+        assertFalse(sentSongs.get(0).onLoaded.getAsBoolean());
+
+        // The pack is already loaded, so coming back only needs the sound
+        move(player, 0, 0);
+        assertEquals(1, sentSongs.size());
+        assertEquals(1, player.playedSounds);
+    }
+
+    @Test
+    public void reentryWhileLoading() {
+        final FakePlayer player = add(0, 0);
+        tracker.startPlayback(AREA, PACK, null);
+        move(player, 30, 0);
+        move(player, 0, 0);
+        assertEquals(1, sentSongs.size());
+        assertTrue(sentSongs.get(0).onLoaded.getAsBoolean());
+    }
+
+    @Test
+    public void noJoinsAfterSongEnds() {
+        final FakePlayer early = add(0, 0);
+        final FakePlayer late = add(50, 0);
+        final FakePlayer tooLate = add(50, 0);
+        tracker.startPlayback(AREA, PACK, null);
+        assertTrue(sentSongs.get(0).onLoaded.getAsBoolean());
+
+        time = 30_000L;
+        move(late, 0, 0);
+        assertTrue(sentSongs.get(1).onLoaded.getAsBoolean());
+
+        time = 61_000L;
+        move(tooLate, 0, 0);
+        assertEquals(2, sentSongs.size());
+
+        // The late joiner's song is still playing, so leaving has to stop it
+        move(late, 50, 0);
+        assertEquals(1, late.stoppedSounds);
+        // The early listener's song has finished
+        move(early, 50, 0);
+        assertEquals(0, early.stoppedSounds);
+    }
+
+    @Test
+    public void overlappingPlaybacksKeepSound() {
+        final FakePlayer player = add(0, 0);
+        tracker.startPlayback(AREA, PACK, null);
+        tracker.startPlayback(PlaybackArea.radius(new Location(WORLD, 30, 64, 0), 30), PACK, null);
+        assertTrue(sentSongs.get(0).onLoaded.getAsBoolean());
+        assertTrue(sentSongs.get(1).onLoaded.getAsBoolean());
+
+        move(player, 30, 0);
+        assertEquals(0, player.stoppedSounds);
+        move(player, 100, 0);
+        assertEquals(1, player.stoppedSounds);
+    }
+
+    private FakePlayer add(double x, double z) {
+        final FakePlayer player = new FakePlayer(new Location(WORLD, x, 64, z));
+        tracker.trackPlayer(player.player);
+        return player;
+    }
+
+    private void move(FakePlayer player, double x, double z) {
+        final Location from = player.location;
+        player.location = new Location(WORLD, x, 64, z);
+        tracker.onPlayerMove(new PlayerMoveEvent(player.player, from, player.location));
+    }
+
+    private List<Player> sentPlayers() {
+        return sentSongs.stream().map(SentSong::player).toList();
+    }
+
+    private record SentSong(Player player, BooleanSupplier onLoaded) {
+    }
+}
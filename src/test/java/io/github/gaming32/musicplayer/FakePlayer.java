@@ -0,0 +1,61 @@
+package io.github.gaming32.musicplayer;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.UUID;
+
+// Stand-ins for the few Player and World methods the audience code uses
+public class FakePlayer implements InvocationHandler {
+    public final UUID uuid = UUID.randomUUID();
+    public final Player player = (Player)Proxy.newProxyInstance(
+        FakePlayer.class.getClassLoader(), new Class<?>[] {Player.class}, this
+    );
+    public Location location;
+    public int playedSounds;
+    public int stoppedSounds;
+
+    public FakePlayer(Location location) {
+        this.location = location;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "getUniqueId" -> uuid;
+            case "getLocation" -> location.clone();
+            case "playSound" -> {
+                playedSounds++;
+                yield null;
+            }
+            case "stopSound" -> {
+                stoppedSounds++;
+                yield null;
+            }
+            case "equals" -> proxy == args[0];
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "toString" -> "FakePlayer[" + location + "]";
+            default -> throw new UnsupportedOperationException(method.toString());
+        };
+    }
+
+    public static World world(String name) {
+        final UUID uuid = UUID.randomUUID();
+        return (World)Proxy.newProxyInstance(
+            FakePlayer.class.getClassLoader(),
+            new Class<?>[] {World.class},
+            (proxy, method, args) -> switch (method.getName()) {
+                case "getUID" -> uuid;
+                case "getName" -> name;
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "toString" -> "World[" + name + "]";
+                default -> throw new UnsupportedOperationException(method.toString());
+            }
+        );
+    }
+}
@@ -0,0 +1,161 @@
+package io.github.gaming32.musicplayer;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// The streams here are built page by page with real Ogg framing (lacing and CRC) and a real Vorbis identification header
+public class OggDurationReaderTest {
+    private static final int VORBIS_SERIAL = 0x1234;
+    private static final int SKELETON_SERIAL = 0x5678;
+    private static final int SAMPLE_RATE = 44100;
+
+    @Test
+    public void singleStream() {
+        assertEquals(Duration.ofMillis(125_500), read(vorbisStream()));
+    }
+
+    @Test
+    public void byteAtATime() {
+        final OggDurationReader reader = new OggDurationReader();
+        for (final byte b : vorbisStream()) {
+            reader.write(b);
+        }
+        assertEquals(Duration.ofMillis(125_500), reader.getDuration());
+    }
+
+    @Test
+    public void ignoresOtherLogicalStreams() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(page(SKELETON_SERIAL, 0x02, 0, 0, "fishead\0".getBytes(StandardCharsets.US_ASCII)));
+        out.writeBytes(page(VORBIS_SERIAL, 0x02, 0, 0, vorbisIdHeader(SAMPLE_RATE)));
+        out.writeBytes(page(VORBIS_SERIAL, 0, SAMPLE_RATE * 10L, 1, audio(1000)));
+        out.writeBytes(page(SKELETON_SERIAL, 0x04, Long.MAX_VALUE / 2, 1, new byte[0]));
+        out.writeBytes(page(VORBIS_SERIAL, 0x04, SAMPLE_RATE * 20L, 2, audio(1000)));
+        assertEquals(Duration.ofSeconds(20), read(out.toByteArray()));
+    }
+
+    @Test
+    public void pagesWithoutFinishedPackets() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(page(VORBIS_SERIAL, 0x02, 0, 0, vorbisIdHeader(SAMPLE_RATE)));
+        out.writeBytes(page(VORBIS_SERIAL, 0, SAMPLE_RATE * 5L, 1, audio(1000)));
+        out.writeBytes(page(VORBIS_SERIAL, 0x01, -1, 2, audio(1000)));
+        assertEquals(Duration.ofSeconds(5), read(out.toByteArray()));
+    }
+
+    @Test
+    public void truncated() {
+        final byte[] stream = vorbisStream();
+        final byte[] headerOnly = page(VORBIS_SERIAL, 0x02, 0, 0, vorbisIdHeader(SAMPLE_RATE));
+        assertNull(read(headerOnly));
+        assertNull(read(Arrays.copyOf(stream, headerOnly.length - 5)));
+        // The cut off final page is not counted
+        assertEquals(Duration.ofSeconds(60), read(Arrays.copyOf(stream, stream.length - 10)));
+    }
+
+    @Test
+    public void garbage() {
+        final byte[] data = new byte[64 * 1024];
+        new Random(0L).nextBytes(data);
+        assertNull(read(data));
+        assertNull(read(new byte[0]));
+        assertNull(read(audio(1000)));
+    }
+
+    @Test
+    public void garbageGranules() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(page(VORBIS_SERIAL, 0x02, 0, 0, vorbisIdHeader(SAMPLE_RATE)));
+        out.writeBytes(page(VORBIS_SERIAL, 0x04, Long.MAX_VALUE, 1, audio(1000)));
+        assertEquals(OggDurationReader.MAX_DURATION, read(out.toByteArray()));
+
+        out.reset();
+        out.writeBytes(page(VORBIS_SERIAL, 0x02, 0, 0, vorbisIdHeader(SAMPLE_RATE)));
+        out.writeBytes(page(VORBIS_SERIAL, 0x04, Long.MIN_VALUE, 1, audio(1000)));
+        assertNull(read(out.toByteArray()));
+
+        out.reset();
+        out.writeBytes(page(VORBIS_SERIAL, 0x02, 0, 0, vorbisIdHeader(0)));
+        out.writeBytes(page(VORBIS_SERIAL, 0x04, SAMPLE_RATE, 1, audio(1000)));
+        assertNull(read(out.toByteArray()));
+    }
+
+    private static Duration read(byte[] data) {
+        final OggDurationReader reader = new OggDurationReader();
+        reader.write(data, 0, data.length);
+        return reader.getDuration();
+    }
+
+    private static byte[] vorbisStream() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.writeBytes(page(VORBIS_SERIAL, 0x02, 0, 0, vorbisIdHeader(SAMPLE_RATE)));
+        out.writeBytes(page(VORBIS_SERIAL, 0, 0, 1, "\u0003vorbis".getBytes(StandardCharsets.US_ASCII)));
+        out.writeBytes(page(VORBIS_SERIAL, 0, SAMPLE_RATE * 60L, 2, audio(4000)));
+        out.writeBytes(page(VORBIS_SERIAL, 0x04, SAMPLE_RATE * 125L + SAMPLE_RATE / 2, 3, audio(4000)));
+        return out.toByteArray();
+    }
+
+    // Random audio data with capture patterns mixed in
+    private static byte[] audio(int length) {
+        final byte[] data = new byte[length];
+        new Random(length).nextBytes(data);
+        for (int i = 0; i + 4 <= length; i += 97) {
+            System.arraycopy("OggS".getBytes(StandardCharsets.US_ASCII), 0, data, i, 4);
+        }
+        return data;
+    }
+
+    private static byte[] vorbisIdHeader(int sampleRate) {
+        return ByteBuffer.allocate(30)
+            .order(ByteOrder.LITTLE_ENDIAN)
+            .put((byte)1).put("vorbis".getBytes(StandardCharsets.US_ASCII))
+            .putInt(0) // vorbis_version
+            .put((byte)2) // audio_channels
+            .putInt(sampleRate)
+            .putInt(0).putInt(128000).putInt(0) // bitrates
+            .put((byte)0xb8) // blocksizes
+            .put((byte)1) // framing
+            .array();
+    }
+
+    private static byte[] page(int serial, int flags, long granule, int sequence, byte[] body) {
+        final int segments = body.length / 255 + 1;
+        final ByteBuffer page = ByteBuffer.allocate(27 + segments + body.length).order(ByteOrder.LITTLE_ENDIAN)
+            .put("OggS".getBytes(StandardCharsets.US_ASCII))
+            .put((byte)0)
+            .put((byte)flags)
+            .putLong(granule)
+            .putInt(serial)
+            .putInt(sequence)
+            .putInt(0) // CRC, filled in below
+            .put((byte)segments);
+        for (int i = 0; i < segments - 1; i++) {
+            page.put((byte)255);
+        }
+        page.put((byte)(body.length % 255));
+        page.put(body);
+        page.putInt(22, crc(page.array()));
+        return page.array();
+    }
+
+    private static int crc(byte[] data) {
+        int crc = 0;
+        for (final byte b : data) {
+            crc ^= (b & 0xff) << 24;
+            for (int i = 0; i < 8; i++) {
+                crc = (crc & 0x80000000) != 0 ? crc << 1 ^ 0x04c11db7 : crc << 1;
+            }
+        }
+        return crc;
+    }
+}
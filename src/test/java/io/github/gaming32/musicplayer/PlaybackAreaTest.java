@@ -0,0 +1,62 @@
+package io.github.gaming32.musicplayer;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.util.BoundingBox;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PlaybackAreaTest {
+    private static final World WORLD = FakePlayer.world("world");
+    private static final World OTHER_WORLD = FakePlayer.world("other");
+
+    @Test
+    public void world() {
+        final PlaybackArea area = PlaybackArea.world(WORLD);
+        assertTrue(area.contains(new Location(WORLD, 1e6, -64, -1e6)));
+        assertFalse(area.contains(new Location(OTHER_WORLD, 0, 64, 0)));
+        assertFalse(area.contains(new Location(OTHER_WORLD, 0, 64, 0), 100));
+    }
+
+    @Test
+    public void radius() {
+        final PlaybackArea area = PlaybackArea.radius(new Location(WORLD, -5, 64, -5), 10);
+        assertTrue(area.contains(new Location(WORLD, -5, 64, 5)));
+        assertFalse(area.contains(new Location(WORLD, -5, 64, 7)));
+        assertTrue(area.contains(new Location(WORLD, -5, 64, 7), 4));
+        assertTrue(area.contains(new Location(WORLD, -5, 64, 9), 4));
+        assertFalse(area.contains(new Location(WORLD, -5, 64, 9.5), 4));
+        assertFalse(area.contains(new Location(OTHER_WORLD, -5, 64, -5), 4));
+    }
+
+    @Test
+    public void region() {
+        final PlaybackArea area = PlaybackArea.region(WORLD, new BoundingBox(-10, 60, -10, 10, 70, 10));
+        assertTrue(area.contains(new Location(WORLD, -10, 60, -10)));
+        // The max corner is exclusive
+        assertFalse(area.contains(new Location(WORLD, 10, 65, 0)));
+        assertTrue(area.contains(new Location(WORLD, 10, 65, 0), 0.5));
+        assertTrue(area.contains(new Location(WORLD, -13.5, 57, 13.5), 4));
+        assertFalse(area.contains(new Location(WORLD, -14.5, 65, 0), 4));
+        assertFalse(area.contains(new Location(WORLD, 0, 74.5, 0), 4));
+        assertFalse(area.contains(new Location(OTHER_WORLD, 0, 65, 0), 4));
+    }
+
+    @Test
+    public void blockRegionIncludesBothCorners() {
+        final PlaybackArea area = PlaybackArea.blockRegion(WORLD, 10, 70, 10, 0, 60, 0);
+        assertTrue(area.contains(new Location(WORLD, 0, 60, 0)));
+        assertTrue(area.contains(new Location(WORLD, 10.9, 70.9, 10.9)));
+        assertFalse(area.contains(new Location(WORLD, 11, 65, 5)));
+        assertFalse(area.contains(new Location(WORLD, -0.1, 65, 5)));
+    }
+
+    @Test
+    public void blockRegionWithFlatY() {
+        final PlaybackArea area = PlaybackArea.blockRegion(WORLD, -3, 64, -3, 3, 64, 3);
+        assertTrue(area.contains(new Location(WORLD, -2.5, 64, 3.5)));
+        assertFalse(area.contains(new Location(WORLD, 0, 65, 0)));
+    }
+}
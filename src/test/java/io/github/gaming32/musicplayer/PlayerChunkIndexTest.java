@@ -0,0 +1,104 @@
+package io.github.gaming32.musicplayer;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.util.BoundingBox;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PlayerChunkIndexTest {
+    private static final World WORLD = FakePlayer.world("world");
+    private static final World OTHER_WORLD = FakePlayer.world("other");
+
+    private final PlayerChunkIndex index = new PlayerChunkIndex();
+
+    @Test
+    public void chunkBoundariesAtNegativeCoordinates() {
+        // Blocks -16 and -1 are in chunk -1, while block -17 (x = -16.5) is in chunk -2
+        final FakePlayer a = add(new Location(WORLD, -16, 64, 0.5));
+        final FakePlayer b = add(new Location(WORLD, -16.5, 64, 0.5));
+        final FakePlayer c = add(new Location(WORLD, -0.5, 64, -0.5));
+        final FakePlayer d = add(new Location(WORLD, 0, 64, 0));
+        assertEquals(Set.of(a.player, c.player), get(PlaybackArea.blockRegion(WORLD, -16, 0, -1, -1, 100, 0)));
+        assertEquals(Set.of(b.player), get(PlaybackArea.blockRegion(WORLD, -17, 0, 0, -17, 100, 0)));
+        assertEquals(Set.of(c.player, d.player), get(PlaybackArea.radius(new Location(WORLD, 0, 64, 0), 1)));
+    }
+
+    @Test
+    public void largeAreaScansOccupiedChunks() {
+        final FakePlayer a = add(new Location(WORLD, -5000, 64, 3000));
+        final FakePlayer b = add(new Location(WORLD, 5000, 64, -3000));
+        add(new Location(WORLD, 20000, 64, 0));
+        add(new Location(OTHER_WORLD, 0, 64, 0));
+        assertEquals(Set.of(a.player, b.player), get(PlaybackArea.radius(new Location(WORLD, 0, 64, 0), 10000)));
+        assertEquals(3, get(PlaybackArea.world(WORLD)).size());
+    }
+
+    @Test
+    public void movingBetweenChunks() {
+        final FakePlayer a = add(new Location(WORLD, 8, 64, 8));
+        final PlaybackArea origin = PlaybackArea.radius(new Location(WORLD, 8, 64, 8), 4);
+        final PlaybackArea far = PlaybackArea.radius(new Location(WORLD, -100, 64, 8), 4);
+        assertEquals(Set.of(a.player), get(origin));
+
+        move(a, new Location(WORLD, -100, 64, 8));
+        assertEquals(Set.of(), get(origin));
+        assertEquals(Set.of(a.player), get(far));
+
+        move(a, new Location(OTHER_WORLD, -100, 64, 8));
+        assertEquals(Set.of(), get(far));
+
+        index.remove(a.player);
+        assertEquals(Set.of(), get(PlaybackArea.world(OTHER_WORLD)));
+    }
+
+    @Test
+    public void matchesBruteForce() {
+        final Random random = new Random(0L);
+        final List<FakePlayer> players = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            players.add(add(new Location(WORLD, random.nextGaussian() * 200, 64, random.nextGaussian() * 200)));
+        }
+        for (int i = 0; i < 500; i++) {
+            final Location center = new Location(WORLD, random.nextGaussian() * 200, 64, random.nextGaussian() * 200);
+            // Mix of areas smaller and larger than the occupied chunk count, so both lookups are covered
+            final double size = random.nextInt(4) == 0 ? random.nextDouble() * 2000 : random.nextDouble() * 64;
+            final PlaybackArea area = random.nextBoolean()
+                ? PlaybackArea.radius(center, size)
+                : PlaybackArea.region(WORLD, BoundingBox.of(center, size, 10, size / 2));
+            final Set<Player> expected = new HashSet<>();
+            for (final FakePlayer player : players) {
+                if (area.contains(player.location)) {
+                    expected.add(player.player);
+                }
+            }
+            assertEquals(expected, get(area));
+        }
+    }
+
+    private FakePlayer add(Location location) {
+        final FakePlayer player = new FakePlayer(location);
+        index.update(player.player, location);
+        return player;
+    }
+
+    private void move(FakePlayer player, Location location) {
+        player.location = location;
+        index.update(player.player, location);
+    }
+
+    private Set<Player> get(PlaybackArea area) {
+        final List<Player> players = index.getPlayers(area);
+        final Set<Player> result = new HashSet<>(players);
+        assertEquals(players.size(), result.size());
+        return result;
+    }
+}